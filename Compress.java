@@ -5,12 +5,27 @@
 // Date: 12/4/2021
 
 import java.io.*;
+import java.nio.file.Path;
+import java.util.HashSet;
 import java.util.Scanner;
+import java.util.Set;
 
 public class Compress {
     private static int tries = 3;
+    /** Marks the start of a solid multi-file archive */
+    public static final int ARCHIVE_MAGIC = 0x5A5A5A01;
+    /** Largest sizing factor, keeps the initial table near 100,000 buckets */
+    private static final int MAX_FACTOR = 10;
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("-a")) {
+            try {
+                compressArchive(args);
+            } catch (IOException e) {
+                System.out.println(e);
+            }
+            return;
+        }
 
         BufferedReader input;
         ObjectOutputStream output;
@@ -101,6 +116,172 @@ public class Compress {
         }
     }
 
+    /**
+     * Compresses every input file into a single solid .zzz archive. All files share
+     * one LZW dictionary, so phrases learned from earlier files are reused by later
+     * ones. Usage: java Compress -a archiveName file1 file2 ...
+     * 
+     * The archive holds the magic number, the file count, then a file table of
+     * (name, offset, code count) where offset is the index of the file's first code,
+     * followed by the codes themselves. The codes are streamed straight to the
+     * archive and the offsets and counts are patched into the table afterwards.
+     * 
+     * @param args "-a", the archive name, then the files to add
+     * @throws IOException if a file cannot be read or the archive cannot be written
+     */
+    public static void compressArchive(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: java Compress -a archiveName file1 file2 ...");
+            return;
+        }
+        String archiveName = args[1] + ".zzz";
+        int fileCount = args.length - 2;
+        File[] files = new File[fileCount];
+        String[] names = new String[fileCount];
+        Set<String> usedNames = new HashSet<>();
+        long totalSize = 0;
+        for (int i = 0; i < fileCount; i++) {
+            files[i] = new File(args[i + 2]);
+            if (!files[i].isFile()) {
+                throw new FileNotFoundException(args[i + 2]);
+            }
+            names[i] = getArchiveName(files[i]);
+            if (!usedNames.add(names[i])) {
+                throw new IOException("More than one file would be stored as " + names[i]);
+            }
+            if (files[i].isAbsolute() || files[i].toPath().normalize().startsWith("..")) {
+                System.out.println("Storing " + files[i] + " as " + names[i]);
+            }
+            totalSize += files[i].length();
+        }
+
+        HashTableChain<String, Integer> table = getASCIIHashTableChain(totalSize);
+        int size = 132;
+        int[] offsets = new int[fileCount];
+        int[] codeCounts = new int[fileCount];
+        int[] tablePositions = new int[fileCount];
+        int codeCount = 0;
+        long start = System.nanoTime();
+        System.out.println("Starting archive compression...");
+
+        boolean complete = false;
+        DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(archiveName)));
+        try {
+            try {
+                output.writeInt(ARCHIVE_MAGIC);
+                output.writeInt(fileCount);
+                for (int i = 0; i < fileCount; i++) {
+                    output.writeUTF(names[i]);
+                    tablePositions[i] = output.size();
+                    output.writeInt(0); // offset, patched below
+                    output.writeInt(0); // code count, patched below
+                }
+
+                for (int i = 0; i < fileCount; i++) {
+                    offsets[i] = codeCount;
+                    BufferedReader input = new BufferedReader(new FileReader(files[i]));
+                    try {
+                        StringBuilder longestP = new StringBuilder();
+                        int next;
+                        while ((next = input.read()) != -1) {
+                            char c = (char) next;
+                            String pc = longestP.toString() + c;
+                            if (table.get(pc) != null) {
+                                longestP.append(c);
+                            } else {
+                                if (table.get(String.valueOf(c)) == null) {
+                                    throw new IOException("Unsupported character in " + files[i] + ": " + (int) c);
+                                }
+                                writeCode(output, table, longestP, files[i]);
+                                codeCount++;
+                                table.put(pc, size);
+                                size++;
+                                longestP.delete(0, longestP.length());
+                                longestP.append(c);
+                            }
+                        }
+                        // flush the last phrase so the file ends on a code boundary
+                        if (longestP.length() > 0) {
+                            writeCode(output, table, longestP, files[i]);
+                            codeCount++;
+                        }
+                    } finally {
+                        input.close();
+                    }
+                    codeCounts[i] = codeCount - offsets[i];
+                }
+            } finally {
+                output.close();
+            }
+
+            RandomAccessFile archive = new RandomAccessFile(archiveName, "rw");
+            try {
+                for (int i = 0; i < fileCount; i++) {
+                    archive.seek(tablePositions[i]);
+                    archive.writeInt(offsets[i]);
+                    archive.writeInt(codeCounts[i]);
+                }
+            } finally {
+                archive.close();
+            }
+            complete = true;
+        } finally {
+            // never leave a partial archive behind
+            if (!complete) {
+                new File(archiveName).delete();
+            }
+        }
+
+        long end = System.nanoTime();
+        double elapsedTime = (end - start);
+        PrintWriter outputLog = new PrintWriter(new FileOutputStream(archiveName + ".log"));
+        outputLog.println("Archive compression of " + fileCount + " files into " + archiveName);
+        outputLog.println("Compressed from " + totalSize + " bytes to " + getFileSize(archiveName) + " bytes");
+        printTime(elapsedTime, outputLog);
+        outputLog.println("The dictionary contains " + table.size() + " total entries");
+        outputLog.println("The table was rehashed " + table.rehashCount() + " times");
+        outputLog.close();
+        System.out.println("Archive compression complete.");
+        for (File file : files) {
+            deleteFile(file.getPath());
+        }
+    }
+
+    /**
+     * Writes the code for a phrase to the archive
+     * 
+     * @param output the archive being written
+     * @param table  the dictionary to look the phrase up in
+     * @param phrase the phrase to write
+     * @param file   the file the phrase came from, used in the error message
+     * @throws IOException if the phrase is not in the dictionary
+     */
+    private static void writeCode(DataOutputStream output, HashTableChain<String, Integer> table,
+            StringBuilder phrase, File file) throws IOException {
+        Integer code = table.get(phrase.toString());
+        if (code == null) {
+            throw new IOException("Unsupported character in " + file + ": " + (int) phrase.charAt(0));
+        }
+        output.writeInt(code);
+    }
+
+    /**
+     * Returns the name a file is stored under in an archive. Relative paths are
+     * kept so files in different folders do not collide, anything else is reduced
+     * to the bare file name.
+     * 
+     * @param file the file being archived
+     * @return the normalized relative path, using / as the separator
+     */
+    public static String getArchiveName(File file) {
+        Path path = file.toPath().normalize();
+        if (path.isAbsolute() || path.startsWith("..")) {
+            return file.getName();
+        }
+        return path.toString().replace(File.separatorChar, '/');
+    }
+
     /**
      * Returns the size of a file
      * 
@@ -130,12 +311,26 @@ public class Compress {
      * @return the new HashTableChain
      */
     public static HashTableChain<String, Integer> getASCIIHashTableChain(File input) {
-        Long fileSize = input.length();
+        return getASCIIHashTableChain(input.length());
+    }
+
+    /**
+     * Creates a new HashTableChain whose initial capacity is based on the total
+     * number of bytes that will be compressed.
+     * 
+     * @param fileSize The number of input bytes used to set initial capacity
+     * @return the new HashTableChain
+     */
+    public static HashTableChain<String, Integer> getASCIIHashTableChain(long fileSize) {
         // System.out.println("FileSize: " + fileSize);
         int factor = (int) (fileSize / 52428800); // creates a factor based on 50Mb
         if (factor == 0) {
             factor = 1;
         }
+        // the table rehashes as it fills, so large file sets start from a bounded size
+        if (factor > MAX_FACTOR) {
+            factor = MAX_FACTOR;
+        }
         int capacity = (int) (101 * Math.pow(2, factor));
 
         capacity = getNextPrime(capacity);
@@ -234,4 +429,4 @@ public class Compress {
         }
     }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
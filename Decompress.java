@@ -5,13 +5,23 @@
 // Date: 12/4/2021
 
 import java.io.*;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Scanner;
+import java.util.Set;
 
 public class Decompress {
     static int tries = 3;
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("-a")) {
+            try {
+                extractArchive(args);
+            } catch (IOException e) {
+                System.out.println(e);
+            }
+            return;
+        }
 
         PrintWriter output;
         PrintWriter outputLog;
@@ -29,19 +39,9 @@ public class Decompress {
                 outputLog = new PrintWriter(new FileOutputStream(newFileName + ".log"));
 
                 long start = System.nanoTime();
-                int tableSize = 127;
                 int doubled = 0;
                 int capacity = 101;
-                Hashtable<Integer, String> table = new Hashtable<>(capacity);
-                for (int i = 32; i <= tableSize; i++) {
-                    int key = i;
-                    String value = Character.toString((char) i);
-                    table.put(key, value);
-                }
-                table.put(128, "\n");
-                table.put(129, "\t");
-                table.put(130, "\r");
-                table.put(131, "\r\n");
+                Hashtable<Integer, String> table = getASCIIHashtable(capacity);
 
                 try {
                     System.out.println("Starting decompression...");
@@ -112,6 +112,169 @@ public class Decompress {
 
     }
 
+    /**
+     * Extracts files from a solid .zzz archive made by Compress -a. Every file
+     * shares one dictionary, so codes are decoded from the start of the archive,
+     * but only the selected files are written and decoding stops after the last
+     * one. Usage: java Decompress -a archive.zzz [file1 file2 ...]
+     * 
+     * @param args "-a", the archive name, then the files to extract (all if none)
+     * @throws IOException if the archive cannot be read, is not an archive or is
+     *                     corrupt
+     */
+    public static void extractArchive(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java Decompress -a archive.zzz [file1 file2 ...]");
+            return;
+        }
+        String fileName = args[1];
+        String newFileName = fileName.substring(0, fileName.length() - 4);
+        DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(fileName)));
+        try {
+            if (input.readInt() != Compress.ARCHIVE_MAGIC) {
+                throw new IOException(fileName + " is not a .zzz archive");
+            }
+            int fileCount = input.readInt();
+            if (fileCount < 0) {
+                throw new IOException(fileName + " has a corrupt file table");
+            }
+            String[] names = new String[fileCount];
+            int[] codeCounts = new int[fileCount];
+            int codeIndex = 0;
+            for (int i = 0; i < fileCount; i++) {
+                names[i] = checkArchiveName(input.readUTF());
+                int offset = input.readInt();
+                codeCounts[i] = input.readInt();
+                if (offset != codeIndex || codeCounts[i] < 0) {
+                    throw new IOException(fileName + " has a corrupt file table entry for " + names[i]);
+                }
+                codeIndex += codeCounts[i];
+            }
+
+            // match requested files the same way Compress stored their names
+            Set<String> requested = new HashSet<>();
+            for (int i = 2; i < args.length; i++) {
+                requested.add(Compress.getArchiveName(new File(args[i])));
+            }
+            boolean extractAll = requested.isEmpty();
+            boolean[] selected = new boolean[fileCount];
+            int last = -1;
+            for (int i = 0; i < fileCount; i++) {
+                selected[i] = extractAll || requested.remove(names[i]);
+                if (selected[i]) {
+                    last = i;
+                }
+            }
+            for (String missing : requested) {
+                System.out.println(missing + " is not in " + fileName);
+            }
+
+            long start = System.nanoTime();
+            int capacity = 101;
+            Hashtable<Integer, String> table = getASCIIHashtable(capacity);
+            int size = 132;
+            int extracted = 0;
+            System.out.println("Starting archive extraction...");
+            for (int i = 0; i <= last; i++) {
+                PrintWriter output = null;
+                if (selected[i]) {
+                    File outputFile = new File(names[i]);
+                    if (outputFile.getParentFile() != null) {
+                        outputFile.getParentFile().mkdirs();
+                    }
+                    output = new PrintWriter(new FileOutputStream(outputFile));
+                }
+                try {
+                    // each file starts on a fresh phrase, so no entry links it to the previous file
+                    String q = null;
+                    for (int n = 0; n < codeCounts[i]; n++) {
+                        int p = input.readInt();
+                        String entry = table.get(p);
+                        if (entry == null && (q == null || p != size)) {
+                            throw new IOException(fileName + " contains unknown code " + p + " in " + names[i]);
+                        }
+                        if (q != null) {
+                            if (entry == null) {
+                                entry = q + q.charAt(0);
+                            }
+                            table.put(size, q + entry.charAt(0));
+                            size++;
+                        }
+                        if (output != null) {
+                            output.print(entry);
+                        }
+                        q = entry;
+                    }
+                } finally {
+                    if (output != null) {
+                        output.close();
+                    }
+                }
+                if (output != null) {
+                    extracted++;
+                }
+            }
+
+            long end = System.nanoTime();
+            long elapsedTime = (end - start);
+            PrintWriter outputLog = new PrintWriter(new FileOutputStream(newFileName + ".log"));
+            outputLog.println("Extraction of " + extracted + " of " + fileCount + " files from " + fileName);
+            printTime(elapsedTime, outputLog);
+            outputLog.println("The dictionary contains " + table.size() + " total entries");
+            outputLog.close();
+            System.out.println("Archive extraction complete.");
+            if (extracted == fileCount) {
+                deleteFile(fileName);
+                deleteFile(fileName + ".log");
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Checks that an archive entry name stays inside the folder it is extracted
+     * to.
+     * 
+     * @param name the name read from the archive's file table
+     * @return the name, if it is a safe relative path
+     * @throws IOException if the name is empty, absolute or contains ..
+     */
+    public static String checkArchiveName(String name) throws IOException {
+        if (name.isEmpty() || name.startsWith("/") || name.startsWith("\\") || new File(name).isAbsolute()) {
+            throw new IOException("Archive entry has an absolute path: " + name);
+        }
+        for (String part : name.split("[/\\\\]")) {
+            if (part.equals("..")) {
+                throw new IOException("Archive entry leaves the extraction folder: " + name);
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Creates the decompression table seeded with the same ASCII codes that
+     * Compress starts from.
+     * 
+     * @param capacity the initial capacity of the table
+     * @return the seeded table
+     */
+    public static Hashtable<Integer, String> getASCIIHashtable(int capacity) {
+        int tableSize = 127;
+        Hashtable<Integer, String> table = new Hashtable<>(capacity);
+        for (int i = 32; i <= tableSize; i++) {
+            int key = i;
+            String value = Character.toString((char) i);
+            table.put(key, value);
+        }
+        table.put(128, "\n");
+        table.put(129, "\t");
+        table.put(130, "\r");
+        table.put(131, "\r\n");
+        return table;
+    }
+
     /**
      * Deletes the previous file that has been compressed into the .zzz file
      * 